@@ -0,0 +1,43 @@
+package com.example.demo.catalinTransactions1.models;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Compact copy of a losing {@link Bid} of a finished auction. It keeps the
+ * original identifier and only the plain item identifier, no foreign key,
+ * so the archive doesn't add to the indexes of the hot <code>Bid</code> table.
+ */
+@Entity
+@Table(indexes = @Index(name = "IDX_ARCHIVEDBID_ITEM", columnList = "itemId"))
+public class ArchivedBid {
+
+	@Id
+    private Long id;
+
+    @NotNull
+    private Long itemId;
+
+    @NotNull
+    private BigDecimal amount;
+
+    public ArchivedBid() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getItemId() {
+        return itemId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+}
@@ -1,16 +1,23 @@
 package com.example.demo.catalinTransactions1.models;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "IDX_ITEM_CATEGORY", columnList = "category_id"),
+        @Index(name = "IDX_ITEM_AUCTIONEND", columnList = "auctionEnd")
+})
 public class Item {
 
 	@Id
@@ -25,6 +32,8 @@ public class Item {
 
     private BigDecimal buyNowPrice;
 
+    private LocalDateTime auctionEnd;
+
     @ManyToOne(fetch = FetchType.LAZY)
     private Category category;
 
@@ -59,6 +68,14 @@ public class Item {
         this.buyNowPrice = buyNowPrice;
     }
 
+    public LocalDateTime getAuctionEnd() {
+        return auctionEnd;
+    }
+
+    public void setAuctionEnd(LocalDateTime auctionEnd) {
+        this.auctionEnd = auctionEnd;
+    }
+
     public Category getCategory() {
         return category;
     }
@@ -0,0 +1,77 @@
+package com.example.demo.catalinTransactions1.services;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import com.example.demo.catalinTransactions1.models.Bid;
+import com.example.demo.catalinTransactions1.models.Item;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Non-blocking facade for the core bid operations. Nothing runs on the calling
+ * thread: bids are placed through the {@link ItemLanes} of the item, and each
+ * read runs on the given executor with its own <code>EntityManager</code> and
+ * connection. Independent reads therefore overlap, and a handler that fans out
+ * to several of them waits for the slowest one instead of the sum of all.
+ *
+ * Returned entities are detached, lazy associations must not be navigated.
+ */
+public class AsyncBidService {
+
+    private final EntityManagerFactory emf;
+    private final ItemLanes lanes;
+    private final Executor executor;
+
+    public AsyncBidService(EntityManagerFactory emf, ItemLanes lanes, Executor executor) {
+        this.emf = emf;
+        this.lanes = lanes;
+        this.executor = executor;
+    }
+
+    /**
+     * The stage completes on the executor, not on the lane thread, whether the bid
+     * was placed or rejected, so callbacks attached by the caller never hold up the
+     * other items of the lane. A closed lane gives a failed stage, not an exception.
+     */
+    public CompletionStage<Bid> placeBid(Long itemId, BigDecimal amount) {
+        CompletableFuture<Bid> placed = new CompletableFuture<>();
+        try {
+            lanes.placeBid(itemId, amount).whenCompleteAsync((bid, ex) -> {
+                if (ex != null)
+                    placed.completeExceptionally(ex);
+                else
+                    placed.complete(bid);
+            }, executor);
+        } catch (IllegalStateException ex) {
+            placed.completeExceptionally(ex);
+        }
+        return placed;
+    }
+
+    public CompletionStage<Bid> highestBid(Long itemId) {
+        return read(em -> BidQueries.queryHighestBid(em, em.getReference(Item.class, itemId)));
+    }
+
+    public CompletionStage<List<Item>> itemsByCategory(Long categoryId) {
+        return read(em -> em.createQuery("select i from Item i where i.category.id = :catId", Item.class)
+                .setParameter("catId", categoryId)
+                .getResultList());
+    }
+
+    private <T> CompletionStage<T> read(Function<EntityManager, T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return query.apply(em);
+            } finally {
+                em.close();
+            }
+        }, executor);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.catalinTransactions1.services;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Moves the losing bids of finished auctions out of the <code>Bid</code> table
+ * into <code>ArchivedBid</code>, so only the winning bid stays in the hot table.
+ *
+ * Both statements are set-based and run in one transaction: an
+ * <code>INSERT ... SELECT</code> copies the rows and a <code>DELETE</code> removes
+ * exactly the rows that were copied. Bids that tie with the highest amount are
+ * kept, so the winner is never archived.
+ *
+ * Each run only looks at auctions that ended inside a <code>[start, end)</code>
+ * window, normally the period since the previous run, so its cost depends on
+ * the auctions closed in that window and not on the whole history. The caller
+ * keeps track of the windows: the next run should start where the previous one
+ * ended. A window that is never run leaves its auctions with all their bids in
+ * <code>Bid</code>, nothing here notices the gap.
+ */
+public class BidArchiver {
+
+    private final EntityManagerFactory emf;
+
+    public BidArchiver(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * Archives the bids of all items whose auction ended at or after
+     * <code>endedAfter</code> and before <code>endedBefore</code>. The window
+     * can't end in the future, auctions still open are never archived.
+     *
+     * @return the number of bids moved to the archive
+     */
+    public int archiveClosedAuctions(LocalDateTime endedAfter, LocalDateTime endedBefore) {
+        if (!endedAfter.isBefore(endedBefore))
+            throw new IllegalArgumentException("Empty window: " + endedAfter + " - " + endedBefore);
+        if (endedBefore.isAfter(LocalDateTime.now()))
+            throw new IllegalArgumentException("Window ends in the future: " + endedBefore);
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+
+            int archived = em.createQuery(
+                    "insert into ArchivedBid (id, itemId, amount)" +
+                            " select b.id, b.item.id, b.amount from Bid b" +
+                            " where b.item.id in (select i.id from Item i where i.auctionEnd >= :start and i.auctionEnd < :end)" +
+                            " and b.amount < (select max(w.amount) from Bid w where w.item = b.item)"
+            )
+                    .setParameter("start", endedAfter)
+                    .setParameter("end", endedBefore)
+                    .executeUpdate();
+
+            int deleted = em.createQuery(
+                    "delete from Bid b" +
+                            " where b.item.id in (select i.id from Item i where i.auctionEnd >= :start and i.auctionEnd < :end)" +
+                            " and exists (select a.id from ArchivedBid a where a.id = b.id)"
+            )
+                    .setParameter("start", endedAfter)
+                    .setParameter("end", endedBefore)
+                    .executeUpdate();
+
+            if (archived != deleted) {
+                throw new IllegalStateException(
+                        "Archived " + archived + " bids but deleted " + deleted
+                );
+            }
+
+            em.getTransaction().commit();
+            return archived;
+        } finally {
+            if (em.getTransaction().isActive())
+                em.getTransaction().rollback();
+            em.close();
+        }
+    }
+}
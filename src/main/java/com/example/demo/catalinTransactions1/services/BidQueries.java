@@ -0,0 +1,30 @@
+package com.example.demo.catalinTransactions1.services;
+
+import com.example.demo.catalinTransactions1.models.Bid;
+import com.example.demo.catalinTransactions1.models.Item;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.NoResultException;
+
+public class BidQueries {
+
+    private BidQueries() {
+    }
+
+    public static Bid queryHighestBid(EntityManager em, Item item) {
+        // Can't scroll with cursors in JPA, have to use setMaxResult()
+        try {
+            return em.createQuery(
+                    "select b from Bid b" +
+                            " where b.item = :itm" +
+                            " order by b.amount desc",
+                    Bid.class
+            )
+                    .setParameter("itm", item)
+                    .setMaxResults(1)
+                    .getSingleResult();
+        } catch (NoResultException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.demo.catalinTransactions1.services;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.example.demo.catalinTransactions1.models.Bid;
+import com.example.demo.catalinTransactions1.models.Item;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+
+/**
+ * Serialized command lanes. Every <code>Item</code> identifier is hashed to one
+ * of N lanes; each lane is a single thread with its own <code>EntityManager</code>,
+ * so all mutations of one item run one after another and never conflict with
+ * each other, while different items proceed in parallel on different lanes.
+ *
+ * Commands waiting in a lane are group-committed: the lane drains its queue and
+ * runs everything in one transaction. A command that rejects its input with a
+ * checked exception, like an {@link com.example.demo.catalinTransactions1.models.InvalidBidException},
+ * fails alone and the group still commits. Any other failure rolls back the
+ * transaction and each command is retried in its own transaction.
+ */
+public class ItemLanes implements AutoCloseable {
+
+    /**
+     * A command may throw a checked exception only before it changes anything in
+     * the persistence context; the rest of its group is committed regardless.
+     */
+    public interface Command<T> {
+        T execute(EntityManager em) throws Exception;
+    }
+
+    private final Lane[] lanes;
+
+    public ItemLanes(EntityManagerFactory emf) {
+        this(emf, Runtime.getRuntime().availableProcessors(), 100);
+    }
+
+    public ItemLanes(EntityManagerFactory emf, int laneCount, int maxBatchSize) {
+        if (laneCount < 1 || maxBatchSize < 1)
+            throw new IllegalArgumentException("Lane count and batch size must be positive");
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(emf, maxBatchSize, "item-lane-" + i);
+            lanes[i].start();
+        }
+    }
+
+    /**
+     * Queues the command in the lane of the given item. The returned future
+     * completes once the transaction containing the command has committed.
+     */
+    public <T> CompletableFuture<T> submit(Long itemId, Command<T> command) {
+        Task<T> task = new Task<>(command);
+        lanes[Math.floorMod(itemId.hashCode(), lanes.length)].enqueue(task);
+        return task.future;
+    }
+
+    /**
+     * Places a bid on the item, validated against the current highest bid. The
+     * <code>OPTIMISTIC_FORCE_INCREMENT</code> lock still guards against writers
+     * outside the lanes, but it costs a single version update per group commit.
+     */
+    public CompletableFuture<Bid> placeBid(Long itemId, BigDecimal amount) {
+        return submit(itemId, em -> {
+            Item item = em.find(Item.class, itemId, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            Bid bid = new Bid(amount, item, BidQueries.queryHighestBid(em, item));
+            em.persist(bid);
+            return bid;
+        });
+    }
+
+    /**
+     * Stops accepting commands, finishes the ones already queued and waits for
+     * the lanes to terminate.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        for (Lane lane : lanes)
+            lane.shutdown();
+        for (Lane lane : lanes)
+            lane.join();
+    }
+
+    private static class Task<T> {
+        final Command<T> command;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        Exception rejection;
+
+        Task(Command<T> command) {
+            this.command = command;
+        }
+
+        void execute(EntityManager em) {
+            result = null;
+            rejection = null;
+            try {
+                result = command.execute(em);
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                // Rejected before touching the persistence context, the group goes on
+                rejection = ex;
+            }
+        }
+
+        void complete() {
+            if (rejection != null)
+                future.completeExceptionally(rejection);
+            else
+                future.complete(result);
+        }
+    }
+
+    private static class Lane extends Thread {
+
+        private static final Task<Void> STOP = new Task<>(em -> null);
+
+        private final EntityManagerFactory emf;
+        private final int maxBatchSize;
+        private final BlockingQueue<Task<?>> queue = new LinkedBlockingQueue<>();
+        private volatile boolean stopped;
+        private EntityManager em;
+
+        Lane(EntityManagerFactory emf, int maxBatchSize, String name) {
+            super(name);
+            this.emf = emf;
+            this.maxBatchSize = maxBatchSize;
+            setDaemon(true);
+        }
+
+        void enqueue(Task<?> task) {
+            if (stopped)
+                throw new IllegalStateException("Lane " + getName() + " is closed");
+            queue.add(task);
+            // The lane may have stopped and drained its queue in between
+            if (stopped && queue.remove(task))
+                throw new IllegalStateException("Lane " + getName() + " is closed");
+        }
+
+        void shutdown() {
+            stopped = true;
+            queue.add(STOP);
+        }
+
+        @Override
+        public void run() {
+            List<Task<?>> batch = new ArrayList<>(maxBatchSize);
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    boolean stop = batch.remove(STOP);
+                    if (!batch.isEmpty())
+                        runBatch(batch);
+                    batch.clear();
+                    if (stop)
+                        break;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable ex) {
+                // The lane can't go on, nobody may wait for a task it will never run
+                stopped = true;
+                for (Task<?> task : batch)
+                    task.future.completeExceptionally(ex);
+            } finally {
+                stopped = true;
+                discardEntityManager(null);
+                Task<?> task;
+                while ((task = queue.poll()) != null) {
+                    task.future.completeExceptionally(
+                            new IllegalStateException("Lane " + getName() + " is closed")
+                    );
+                }
+            }
+        }
+
+        /**
+         * Runs the batch in one transaction. Rejected commands fail on their own.
+         * A <code>RuntimeException</code>, from a command or from flush and commit,
+         * rolls back the group, and every command is then retried alone. Anything
+         * else, an <code>Error</code> or failing to get an <code>EntityManager</code>,
+         * is thrown to stop the lane.
+         */
+        private void runBatch(List<Task<?>> batch) {
+            if (em == null)
+                em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                for (Task<?> task : batch)
+                    task.execute(em);
+                em.getTransaction().commit();
+                em.clear();
+                for (Task<?> task : batch)
+                    task.complete();
+            } catch (RuntimeException ex) {
+                // The persistence context is unusable after a failure, start over
+                discardEntityManager(ex);
+
+                if (batch.size() == 1) {
+                    batch.get(0).future.completeExceptionally(ex);
+                } else {
+                    for (Task<?> task : batch)
+                        runBatch(Collections.singletonList(task));
+                }
+            } catch (Throwable ex) {
+                discardEntityManager(ex);
+                throw ex;
+            }
+        }
+
+        private void discardEntityManager(Throwable cause) {
+            if (em == null)
+                return;
+            try {
+                if (em.getTransaction().isActive())
+                    em.getTransaction().rollback();
+            } catch (RuntimeException ex) {
+                if (cause != null)
+                    cause.addSuppressed(ex);
+            }
+            try {
+                em.close();
+            } catch (RuntimeException ex) {
+                if (cause != null)
+                    cause.addSuppressed(ex);
+            } finally {
+                em = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.demo.catalinTransactions1.services;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.hibernate.Session;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Bulk update of <code>Item.buyNowPrice</code> without loading the entities.
+ *
+ * Each change carries the version the caller read, and the <code>UPDATE</code>
+ * only matches if the row still has it, exactly like the statement Hibernate
+ * issues when flushing a dirty versioned entity:
+ *
+ *      update Item set buyNowPrice = ?, version = version + 1
+ *      where id = ? and version = ?
+ *
+ * The statements are sent as JDBC batches, one transaction per batch. A row
+ * that was modified (or deleted) concurrently updates nothing and is reported
+ * as a conflict instead of failing the whole batch. Drivers that don't report
+ * update counts for batches give <code>UNKNOWN</code>; the caller has to re-read
+ * those rows.
+ */
+public class ItemRepricer {
+
+    public static class PriceChange {
+        public final Long itemId;
+        public final long expectedVersion;
+        public final BigDecimal newPrice;
+
+        public PriceChange(Long itemId, long expectedVersion, BigDecimal newPrice) {
+            this.itemId = itemId;
+            this.expectedVersion = expectedVersion;
+            this.newPrice = newPrice;
+        }
+    }
+
+    public enum Status {
+        UPDATED, CONFLICT, UNKNOWN
+    }
+
+    public static class Result {
+        public final PriceChange change;
+        public final Status status;
+
+        Result(PriceChange change, Status status) {
+            this.change = change;
+            this.status = status;
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final int batchSize;
+
+    public ItemRepricer(EntityManagerFactory emf) {
+        this(emf, 500);
+    }
+
+    public ItemRepricer(EntityManagerFactory emf, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive");
+        this.emf = emf;
+        this.batchSize = batchSize;
+    }
+
+    public List<Result> reprice(Stream<PriceChange> changes) {
+        List<Result> results = new ArrayList<>();
+        reprice(changes, results::add);
+        return results;
+    }
+
+    /**
+     * Applies the changes batch by batch, handing each result to the consumer
+     * once its batch has committed. Suitable for streaming the whole catalog.
+     */
+    public void reprice(Stream<PriceChange> changes, Consumer<Result> results) {
+        Iterator<PriceChange> it = changes.iterator();
+        List<PriceChange> batch = new ArrayList<>(batchSize);
+        while (it.hasNext()) {
+            batch.add(it.next());
+            if (batch.size() == batchSize || !it.hasNext()) {
+                applyBatch(batch).forEach(results);
+                batch.clear();
+            }
+        }
+    }
+
+    private List<Result> applyBatch(List<PriceChange> batch) {
+        List<Result> results = new ArrayList<>(batch.size());
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "update Item set buyNowPrice = ?, version = version + 1" +
+                                " where id = ? and version = ?")) {
+                    for (PriceChange change : batch) {
+                        statement.setBigDecimal(1, change.newPrice);
+                        statement.setLong(2, change.itemId);
+                        statement.setLong(3, change.expectedVersion);
+                        statement.addBatch();
+                    }
+                    int[] counts = statement.executeBatch();
+                    for (int i = 0; i < counts.length; i++)
+                        results.add(new Result(batch.get(i), status(counts[i])));
+                }
+            });
+            em.getTransaction().commit();
+            return results;
+        } finally {
+            if (em.getTransaction().isActive())
+                em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    private static Status status(int updateCount) {
+        switch (updateCount) {
+            case 1:
+                return Status.UPDATED;
+            case 0:
+                return Status.CONFLICT;
+            case Statement.SUCCESS_NO_INFO:
+                return Status.UNKNOWN;
+            default:
+                // EXECUTE_FAILED, or more than one row for a primary key; roll back the batch
+                throw new IllegalStateException("Unexpected update count in batch: " + updateCount);
+        }
+    }
+}
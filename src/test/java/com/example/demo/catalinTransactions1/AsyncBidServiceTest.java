@@ -0,0 +1,107 @@
+package com.example.demo.catalinTransactions1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.catalinTransactions1.models.Bid;
+import com.example.demo.catalinTransactions1.models.InvalidBidException;
+import com.example.demo.catalinTransactions1.models.Item;
+import com.example.demo.catalinTransactions1.services.AsyncBidService;
+import com.example.demo.catalinTransactions1.services.ItemLanes;
+
+public class AsyncBidServiceTest {
+
+    /**
+     * Las lecturas independientes se lanzan juntas y cada una corre en su propio
+     * EntityManager; el hilo que llama solo espera al combinar los resultados. Cada
+     * lectura espera en un CountDownLatch a la otra, asi que si no corrieran al mismo
+     * tiempo el test fallaria.
+     */
+    @Test
+    void fanOutReads() throws Exception {
+        ConcurrencyTestData testData = new VersioningTest().storeCategoriesAndItems();
+        Long CATEGORY_ID = testData.categories.getFirstId();
+        Long ITEM_ID = testData.items.getFirstId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ItemLanes closedLanes;
+        try (ItemLanes lanes = new ItemLanes(VersioningTest.emf)) {
+            AsyncBidService service = new AsyncBidService(VersioningTest.emf, lanes, executor);
+
+            // Callbacks of a placed bid don't run on the single-writer lane thread
+            String callbackThread = service.placeBid(ITEM_ID, new BigDecimal("20"))
+                    .thenApply(bid -> Thread.currentThread().getName())
+                    .toCompletableFuture().get();
+            assertFalse(callbackThread.startsWith("item-lane-"), callbackThread);
+
+            // Both reads must be in flight at the same time to get past the latch
+            CountDownLatch inFlight = new CountDownLatch(2);
+            AtomicBoolean overlapped = new AtomicBoolean(true);
+            Executor meetingExecutor = command -> executor.execute(() -> {
+                inFlight.countDown();
+                try {
+                    if (!inFlight.await(10, TimeUnit.SECONDS))
+                        overlapped.set(false);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                command.run();
+            });
+            AsyncBidService fanOut = new AsyncBidService(VersioningTest.emf, lanes, meetingExecutor);
+
+            CompletionStage<Bid> highestBid = fanOut.highestBid(ITEM_ID);
+            CompletionStage<List<Item>> items = fanOut.itemsByCategory(CATEGORY_ID);
+
+            String summary = highestBid.thenCombine(items,
+                    (bid, list) -> bid.getAmount().intValue() + "/" + list.size()
+            ).toCompletableFuture().get();
+
+            assertEquals("20/3", summary);
+            assertTrue(overlapped.get());
+
+            // A rejected bid fails its stage, it doesn't throw on the calling thread
+            ExecutionException ex = assertThrows(ExecutionException.class,
+                    () -> service.placeBid(ITEM_ID, new BigDecimal("5")).toCompletableFuture().get());
+            assertTrue(ex.getCause() instanceof InvalidBidException);
+
+            // Neither do callbacks of a rejected bid, even when attached before it completes
+            CountDownLatch running = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            lanes.submit(ITEM_ID, em -> {
+                running.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            });
+            running.await();
+            CompletionStage<String> rejectedCallbackThread = service.placeBid(ITEM_ID, new BigDecimal("5"))
+                    .handle((bid, failure) -> Thread.currentThread().getName());
+            release.countDown();
+            String rejectedThread = rejectedCallbackThread.toCompletableFuture().get();
+            assertFalse(rejectedThread.startsWith("item-lane-"), rejectedThread);
+
+            closedLanes = lanes;
+        } finally {
+            executor.shutdown();
+        }
+
+        // Once the lanes are closed the facade still answers with a failed stage
+        AsyncBidService closed = new AsyncBidService(VersioningTest.emf, closedLanes, Runnable::run);
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> closed.placeBid(ITEM_ID, new BigDecimal("30")).toCompletableFuture().get());
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.catalinTransactions1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.catalinTransactions1.models.ArchivedBid;
+import com.example.demo.catalinTransactions1.models.Bid;
+import com.example.demo.catalinTransactions1.models.Item;
+import com.example.demo.catalinTransactions1.services.BidArchiver;
+
+import jakarta.persistence.EntityManager;
+
+public class BidArchivingTest {
+
+    private Long storeItemWithBids(LocalDateTime auctionEnd) {
+        EntityManager em = VersioningTest.emf.createEntityManager();
+        em.getTransaction().begin();
+        Item item = new Item("Some Item");
+        item.setAuctionEnd(auctionEnd);
+        em.persist(item);
+        for (int i = 1; i <= 3; i++) {
+            em.persist(new Bid(new BigDecimal(10 + i), item));
+        }
+        em.getTransaction().commit();
+        em.close();
+        return item.getId();
+    }
+
+    private List<Bid> bidsOf(EntityManager em, Long itemId) {
+        return em.createQuery("select b from Bid b where b.item.id = :itemId", Bid.class)
+                .setParameter("itemId", itemId)
+                .getResultList();
+    }
+
+    /**
+     * Solo las subastas terminadas se archivan, y de ellas queda en la tabla Bid
+     * unicamente la oferta ganadora. Las demas pasan a ArchivedBid. Cada corrida mira
+     * solo las subastas que terminaron dentro de su ventana.
+     */
+    @Test
+    void archiveKeepsOnlyWinningBid() {
+        LocalDateTime now = LocalDateTime.now();
+        Long CLOSED_ITEM_ID = storeItemWithBids(now.minusDays(1));
+        Long OPEN_ITEM_ID = storeItemWithBids(now.plusDays(1));
+        Long EARLIER_ITEM_ID = storeItemWithBids(now.minusDays(3));
+
+        int archived = new BidArchiver(VersioningTest.emf).archiveClosedAuctions(now.minusDays(2), now);
+        assertEquals(2, archived);
+
+        EntityManager em = VersioningTest.emf.createEntityManager();
+
+        List<Bid> closedBids = bidsOf(em, CLOSED_ITEM_ID);
+        assertEquals(1, closedBids.size());
+        assertEquals(0, closedBids.get(0).getAmount().compareTo(new BigDecimal("13")));
+
+        assertEquals(3, bidsOf(em, OPEN_ITEM_ID).size());
+
+        // Closed before the window, left for the run that covers it
+        assertEquals(3, bidsOf(em, EARLIER_ITEM_ID).size());
+
+        List<ArchivedBid> archivedBids =
+                em.createQuery("select a from ArchivedBid a where a.itemId = :itemId", ArchivedBid.class)
+                        .setParameter("itemId", CLOSED_ITEM_ID)
+                        .getResultList();
+        assertEquals(2, archivedBids.size());
+
+        em.close();
+
+        // Running the job again doesn't move anything, the winner stays
+        assertEquals(0, new BidArchiver(VersioningTest.emf).archiveClosedAuctions(now.minusDays(2), now));
+    }
+
+    /**
+     * Una ventana que termina en el futuro incluiria subastas todavia abiertas,
+     * entonces se rechaza y no se mueve ninguna oferta.
+     */
+    @Test
+    void windowEndingInFutureIsRejected() {
+        LocalDateTime now = LocalDateTime.now();
+        Long OPEN_ITEM_ID = storeItemWithBids(now.plusDays(1));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new BidArchiver(VersioningTest.emf).archiveClosedAuctions(now, now.plusDays(5)));
+
+        EntityManager em = VersioningTest.emf.createEntityManager();
+        assertEquals(3, bidsOf(em, OPEN_ITEM_ID).size());
+        em.close();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.demo.catalinTransactions1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.catalinTransactions1.models.Bid;
+import com.example.demo.catalinTransactions1.models.InvalidBidException;
+import com.example.demo.catalinTransactions1.models.Item;
+import com.example.demo.catalinTransactions1.services.BidQueries;
+import com.example.demo.catalinTransactions1.services.ItemLanes;
+
+import jakarta.persistence.EntityManager;
+
+public class ItemLanesTest {
+
+    private Long storeItem() {
+        EntityManager em = VersioningTest.emf.createEntityManager();
+        em.getTransaction().begin();
+        Item item = new Item("Some Item");
+        em.persist(item);
+        em.getTransaction().commit();
+        em.close();
+        return item.getId();
+    }
+
+    /**
+     * Todas las ofertas sobre el mismo Item pasan por el mismo "lane", una detras de otra,
+     * entonces no hay OptimisticLockException ni espera por locks de la base. Las que
+     * llegan juntas se guardan en una sola transaccion.
+     */
+    @Test
+    void bidsOnSameItemAreSerialized() throws Exception {
+        Long ITEM_ID = storeItem();
+
+        List<CompletableFuture<Bid>> bids = new ArrayList<>();
+        try (ItemLanes lanes = new ItemLanes(VersioningTest.emf, 4, 50)) {
+            // Keep the lane busy, so all the bids queue up behind this command
+            CountDownLatch running = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> blocker = lanes.submit(ITEM_ID, em -> {
+                running.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            });
+            running.await();
+
+            for (int i = 1; i <= 20; i++)
+                bids.add(lanes.placeBid(ITEM_ID, new BigDecimal(10 + i)));
+
+            release.countDown();
+            assertTrue(blocker.get());
+            for (CompletableFuture<Bid> bid : bids)
+                bid.get();
+        }
+
+        EntityManager em = VersioningTest.emf.createEntityManager();
+        Item item = em.find(Item.class, ITEM_ID);
+        assertEquals(0, BidQueries.queryHighestBid(em, item).getAmount().compareTo(new BigDecimal("30")));
+        assertEquals(20L, em.createQuery("select count(b) from Bid b where b.item = :itm", Long.class)
+                .setParameter("itm", item)
+                .getSingleResult());
+
+        // One group commit, one forced version increment for all 20 bids
+        assertEquals(1, item.getVersion());
+        em.close();
+    }
+
+    /**
+     * Una oferta invalida dentro de un grupo no afecta a las demas: se rechaza antes del
+     * persist, falla sola y el resto del grupo se guarda en la misma transaccion.
+     */
+    @Test
+    void invalidBidDoesNotFailItsGroup() throws Exception {
+        Long ITEM_ID = storeItem();
+
+        CompletableFuture<Bid> first, tooLow, last;
+        try (ItemLanes lanes = new ItemLanes(VersioningTest.emf, 4, 50)) {
+            CountDownLatch running = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            lanes.submit(ITEM_ID, em -> {
+                running.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            });
+            running.await();
+
+            first = lanes.placeBid(ITEM_ID, new BigDecimal("11"));
+            tooLow = lanes.placeBid(ITEM_ID, new BigDecimal("5"));
+            last = lanes.placeBid(ITEM_ID, new BigDecimal("12"));
+
+            release.countDown();
+        }
+
+        assertTrue(first.get().getId() != null);
+        ExecutionException ex = assertThrows(ExecutionException.class, tooLow::get);
+        assertTrue(ex.getCause() instanceof InvalidBidException);
+        assertEquals(0, last.get().getAmount().compareTo(new BigDecimal("12")));
+
+        // Still one group commit, the rejected bid didn't force a replay
+        EntityManager em = VersioningTest.emf.createEntityManager();
+        assertEquals(1, em.find(Item.class, ITEM_ID).getVersion());
+        em.close();
+    }
+
+    /**
+     * Si un comando tira un Error el lane no puede seguir: nadie se queda esperando,
+     * el futuro falla y el lane deja de aceptar comandos.
+     */
+    @Test
+    void errorStopsLane() throws Exception {
+        Long ITEM_ID = storeItem();
+
+        try (ItemLanes lanes = new ItemLanes(VersioningTest.emf, 1, 50)) {
+            CompletableFuture<Object> broken = lanes.submit(ITEM_ID, em -> {
+                throw new AssertionError("Broken command");
+            });
+            ExecutionException ex = assertThrows(ExecutionException.class,
+                    () -> broken.get(10, TimeUnit.SECONDS));
+            assertTrue(ex.getCause() instanceof AssertionError);
+
+            // The lane is stopped before the future fails, new commands are rejected
+            assertThrows(IllegalStateException.class, () -> lanes.placeBid(ITEM_ID, new BigDecimal("11")));
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.demo.catalinTransactions1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.catalinTransactions1.models.Bid;
+import com.example.demo.catalinTransactions1.models.Category;
+import com.example.demo.catalinTransactions1.models.Item;
+import com.example.demo.catalinTransactions1.services.BidQueries;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Persistence;
+
+/**
+ * Guarda la forma del SQL que generan las queries mas usadas. Con un StatementInspector
+ * se captura cada sentencia y se controla cuantas se ejecutan por operacion; con EXPLAIN
+ * sobre una base H2 embebida se controla que sigan usando un indice. Si un upgrade de
+ * Hibernate cambia el SQL, falla este test y no la latencia en produccion.
+ */
+public class QueryPlanTest {
+
+    static class RecordingInspector implements StatementInspector {
+        final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    static final String CATEGORY_QUERY = "select i from Item i where i.category.id = :catId";
+
+    static final RecordingInspector inspector = new RecordingInspector();
+
+    static EntityManagerFactory emf;
+
+    static Long CATEGORY_ID;
+    static Long ITEM_ID;
+
+    @BeforeAll
+    static void createEmbeddedDatabase() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+        properties.put("jakarta.persistence.jdbc.url", "jdbc:h2:mem:queryplans;DB_CLOSE_DELAY=-1");
+        properties.put("jakarta.persistence.jdbc.user", "sa");
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.session_factory.statement_inspector", inspector);
+        emf = Persistence.createEntityManagerFactory("holahola", properties);
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 1; i <= 3; i++) {
+            Category category = new Category();
+            category.setName("Category: " + i);
+            em.persist(category);
+            if (CATEGORY_ID == null)
+                CATEGORY_ID = category.getId();
+            for (int j = 1; j <= 3; j++) {
+                Item item = new Item("Item " + j);
+                item.setCategory(category);
+                item.setBuyNowPrice(new BigDecimal(10 + j));
+                em.persist(item);
+                if (ITEM_ID == null)
+                    ITEM_ID = item.getId();
+                for (int k = 1; k <= 3; k++)
+                    em.persist(new Bid(new BigDecimal(10 + k), item));
+            }
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @AfterAll
+    static void closeEmbeddedDatabase() {
+        emf.close();
+    }
+
+    @BeforeEach
+    void clearStatements() {
+        inspector.statements.clear();
+    }
+
+    private List<String> statements() {
+        List<String> statements = new ArrayList<>();
+        for (String sql : inspector.statements)
+            statements.add(sql.replaceAll("\\s+", " ").trim().toLowerCase());
+        return statements;
+    }
+
+    private String explain(EntityManager em, String sql) {
+        StringBuilder plan = new StringBuilder();
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++)
+                    statement.setLong(i, 1L);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next())
+                        plan.append(rs.getString(1));
+                }
+            }
+        });
+        return plan.toString();
+    }
+
+    private void assertUsesIndex(String plan, String index) {
+        assertFalse(plan.contains("tableScan"), "Full table scan: " + plan);
+        assertTrue(plan.contains(index), "Index " + index + " not used: " + plan);
+    }
+
+    @Test
+    void categoryQuery() {
+        EntityManager em = emf.createEntityManager();
+        List<Item> items = em.createQuery(CATEGORY_QUERY, Item.class)
+                .setParameter("catId", CATEGORY_ID)
+                .getResultList();
+        assertEquals(3, items.size());
+
+        List<String> statements = statements();
+        assertEquals(1, statements.size(), statements.toString());
+        assertTrue(statements.get(0).matches("select .* from item \\w+ where \\w+\\.category_id=\\?"),
+                statements.get(0));
+
+        assertUsesIndex(explain(em, statements.get(0)), "IDX_ITEM_CATEGORY: CATEGORY_ID = ?1");
+        em.close();
+    }
+
+    @Test
+    void categoryQueryPessimisticWrite() {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.createQuery(CATEGORY_QUERY, Item.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("jakarta.persistence.lock.timeout", 5000)
+                .setParameter("catId", CATEGORY_ID)
+                .getResultList();
+        em.getTransaction().commit();
+
+        // The lock is part of the same statement, no extra SELECT per row
+        List<String> statements = statements();
+        assertEquals(1, statements.size(), statements.toString());
+        assertTrue(statements.get(0).matches("select .* from item \\w+ where \\w+\\.category_id=\\? for update"),
+                statements.get(0));
+
+        assertUsesIndex(explain(em, statements.get(0)), "IDX_ITEM_CATEGORY: CATEGORY_ID = ?1");
+        em.close();
+    }
+
+    @Test
+    void categoryQueryOptimistic() {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        List<Item> items = em.createQuery(CATEGORY_QUERY, Item.class)
+                .setLockMode(LockModeType.OPTIMISTIC)
+                .setParameter("catId", CATEGORY_ID)
+                .getResultList();
+        em.getTransaction().commit();
+
+        // The query, plus one version check by primary key per Item at commit
+        List<String> statements = statements();
+        assertEquals(1 + items.size(), statements.size(), statements.toString());
+        assertUsesIndex(explain(em, statements.get(0)), "IDX_ITEM_CATEGORY: CATEGORY_ID = ?1");
+        for (String sql : statements.subList(1, statements.size())) {
+            assertTrue(sql.matches("select version as \\w+ from item where id=\\?"), sql);
+            assertUsesIndex(explain(em, sql), "PRIMARY_KEY");
+        }
+        em.close();
+    }
+
+    @Test
+    void highestBid() {
+        EntityManager em = emf.createEntityManager();
+        Bid bid = BidQueries.queryHighestBid(em, em.getReference(Item.class, ITEM_ID));
+        assertEquals(0, bid.getAmount().compareTo(new BigDecimal("13")));
+
+        // Sorting and the limit happen in the database, not in memory
+        List<String> statements = statements();
+        assertEquals(1, statements.size(), statements.toString());
+        assertTrue(statements.get(0).matches(
+                "select .* from bid \\w+ where \\w+\\.item_id=\\? order by \\w+\\.amount desc fetch first \\? rows only"),
+                statements.get(0));
+
+        assertUsesIndex(explain(em, statements.get(0)), "IDX_BID_ITEM_AMOUNT: ITEM_ID = ?1");
+        em.close();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.catalinTransactions1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.catalinTransactions1.models.Item;
+import com.example.demo.catalinTransactions1.services.ItemRepricer;
+import com.example.demo.catalinTransactions1.services.ItemRepricer.PriceChange;
+import com.example.demo.catalinTransactions1.services.ItemRepricer.Result;
+import com.example.demo.catalinTransactions1.services.ItemRepricer.Status;
+
+import jakarta.persistence.EntityManager;
+
+public class RepricingTest {
+
+    /**
+     * Se cambian precios sin cargar los Item, con UPDATEs en batch. Cada UPDATE lleva
+     * la version leida, igual que el optimistic lock de Hibernate, entonces si alguien
+     * modifico el Item en el medio el cambio no se aplica y se informa como CONFLICT.
+     */
+    @Test
+    void concurrentlyModifiedItemIsAConflict() {
+        ConcurrencyTestData testData = new VersioningTest().storeCategoriesAndItems();
+        Long UNTOUCHED_ID = testData.items.getFirstId();
+        Long MODIFIED_ID = testData.items.getLastId();
+
+        // A concurrent unit of work modifies one item, its version is now 1
+        EntityManager em = VersioningTest.emf.createEntityManager();
+        em.getTransaction().begin();
+        em.find(Item.class, MODIFIED_ID).setName("Other Name");
+        em.getTransaction().commit();
+        em.close();
+
+        List<Result> results = new ItemRepricer(VersioningTest.emf).reprice(Stream.of(
+                new PriceChange(UNTOUCHED_ID, 0, new BigDecimal("99")),
+                new PriceChange(MODIFIED_ID, 0, new BigDecimal("99"))
+        ));
+
+        assertEquals(Status.UPDATED, results.get(0).status);
+        assertEquals(Status.CONFLICT, results.get(1).status);
+
+        em = VersioningTest.emf.createEntityManager();
+        Item untouched = em.find(Item.class, UNTOUCHED_ID);
+        assertEquals(0, untouched.getBuyNowPrice().compareTo(new BigDecimal("99")));
+        assertEquals(1, untouched.getVersion());
+
+        Item modified = em.find(Item.class, MODIFIED_ID);
+        assertEquals(0, modified.getBuyNowPrice().compareTo(new BigDecimal("13")));
+        assertEquals(1, modified.getVersion());
+        em.close();
+    }
+
+    /**
+     * Con batches chicos el conflicto cae en el segundo batch; los demas batches se
+     * aplican igual y cada resultado llega al Consumer en el orden de los cambios.
+     */
+    @Test
+    void conflictInLaterBatch() {
+        ConcurrencyTestData testData = new VersioningTest().storeCategoriesAndItems();
+        Long[] ITEMS = testData.items.identifiers;
+        Long MODIFIED_ID = ITEMS[2];
+
+        EntityManager em = VersioningTest.emf.createEntityManager();
+        em.getTransaction().begin();
+        Item modified = em.find(Item.class, MODIFIED_ID);
+        modified.setName("Other Name");
+        final BigDecimal ORIGINAL_PRICE = modified.getBuyNowPrice();
+        em.getTransaction().commit();
+        em.close();
+
+        List<Result> results = new ArrayList<>();
+        new ItemRepricer(VersioningTest.emf, 2).reprice(
+                Arrays.stream(ITEMS).map(id -> new PriceChange(id, 0, new BigDecimal("99"))),
+                results::add
+        );
+
+        assertEquals(ITEMS.length, results.size());
+        for (int i = 0; i < ITEMS.length; i++) {
+            assertEquals(ITEMS[i], results.get(i).change.itemId);
+            assertEquals(ITEMS[i].equals(MODIFIED_ID) ? Status.CONFLICT : Status.UPDATED,
+                    results.get(i).status);
+        }
+
+        em = VersioningTest.emf.createEntityManager();
+        for (Long id : ITEMS) {
+            BigDecimal expected = id.equals(MODIFIED_ID) ? ORIGINAL_PRICE : new BigDecimal("99");
+            assertEquals(0, em.find(Item.class, id).getBuyNowPrice().compareTo(expected));
+        }
+        em.close();
+    }
+}